@@ -0,0 +1,131 @@
+// Off-screen drawing of board snapshots with plain Java2D, sharing Board's layout,
+// for renderers that can't go through a javalib window.
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+// to draw board snapshots into images, as Board.makeScene and Tile.draw would on screen;
+// holds no state, so one painter can be shared across threads
+class BoardPainter {
+  // to draw the given snapshot off-screen at the given scale (1 for the window's size),
+  // following the layout of Board.makeScene
+  BufferedImage render(BoardSnapshot frame, double scale) {
+    BufferedImage image = new BufferedImage(
+        (int) Math.ceil(IConstants.GAMEBOARD_WIDTH * scale),
+        (int) Math.ceil(IConstants.GAMEBOARD_HEIGHT * scale), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, (scale == 1)
+        ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
+    g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+        RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    g.scale(scale, scale);
+
+    // outer game board
+    this.fillRect(g, IConstants.GAMEBOARD_WIDTH / 2, IConstants.GAMEBOARD_HEIGHT / 2,
+        IConstants.GAMEBOARD_WIDTH, IConstants.GAMEBOARD_HEIGHT, IConstants.BACKGROUND_COLOR);
+
+    // game grid
+    this.fillRect(g, Board.boardCenterX(), Board.boardCenterY(), IConstants.BOARD_SIDE,
+        IConstants.BOARD_SIDE, IConstants.BORDER_COLOR);
+
+    // header (title/description/score boxes)
+    this.drawHeader(g, frame);
+
+    // grid of cells
+    for (int i = 0; i < IConstants.N_CELLS; i++) {
+      for (int j = 0; j < IConstants.N_CELLS; j++) {
+        this.drawTile(g, frame.num(i, j), frame.spawning(i, j), Board.jToX(j),
+            Board.iToY(i));
+      }
+    }
+
+    // if the game is over, display a game-over message
+    if (frame.gameOver) {
+      this.fillRect(g, Board.boardCenterX(), Board.boardCenterY(),
+          IConstants.BOARD_SIDE * 3 / 4, IConstants.BOARD_SIDE / 4, IConstants.TEXT_24_COLOR);
+      this.drawText(g, (frame.win) ? "You won!" : "Game over!", IConstants.CELL_SIDE / 3,
+          IConstants.BACKGROUND_COLOR, Board.boardCenterX(),
+          Board.boardCenterY() - IConstants.CELL_GAP * 3 / 2);
+      this.drawText(g, "Press enter to play again :)", IConstants.CELL_SIDE / 4,
+          IConstants.BACKGROUND_COLOR, Board.boardCenterX(),
+          Board.boardCenterY() + IConstants.CELL_GAP * 3 / 2);
+    }
+
+    g.dispose();
+    return image;
+  }
+
+  // draw the title, description, and score boxes, following Board.drawHeader
+  void drawHeader(Graphics2D g, BoardSnapshot frame) {
+    this.drawText(g, Integer.toString(2048), IConstants.CELL_SIDE * 9 / 10,
+        IConstants.TEXT_24_COLOR, Board.titleX(), Board.titleY());
+
+    this.drawText(g, "Join the numbers and get to the 2048 tile!",
+        IConstants.CELL_SIDE * 18 / 80, IConstants.TEXT_24_COLOR, Board.descriptionX(),
+        Board.descriptionY());
+
+    this.drawScoreBox(g, "SCORE", frame.score, Board.scoreBoxX(), Board.headerY());
+    this.drawScoreBox(g, "BEST", frame.best, Board.bestBoxX(), Board.headerY());
+  }
+
+  // draw a labeled score box centered at the given position
+  void drawScoreBox(Graphics2D g, String label, int value, int x, int y) {
+    this.fillRect(g, x, y, IConstants.CELL_SIDE, IConstants.CELL_SIDE / 2,
+        IConstants.BORDER_COLOR);
+    this.drawText(g, label, IConstants.CELL_SIDE / 5, IConstants.SCORE_LABEL_COLOR, x,
+        y - IConstants.CELL_GAP);
+    this.drawText(g, Integer.toString(value), IConstants.CELL_SIDE / 5, IConstants.TEXT_COLOR,
+        x, y + IConstants.CELL_GAP);
+  }
+
+  // draw a cell centered at the given position, following Tile.draw
+  void drawTile(Graphics2D g, int num, boolean spawning, int x, int y) {
+
+    // empty cell
+    if (num == -1) {
+      this.fillRect(g, x, y, IConstants.CELL_SIDE, IConstants.CELL_SIDE,
+          IConstants.EMPTY_COLOR);
+    }
+
+    // tile cell
+    else {
+      int digits = Integer.toString(num).length();
+      Color textColor = (num <= 4) ? IConstants.TEXT_24_COLOR : IConstants.TEXT_COLOR;
+      Color tileColor = IConstants.TILE_COLORS.get(num);
+
+      int side = IConstants.CELL_SIDE;
+      int textSize = (digits < 3) ? (IConstants.CELL_SIDE * 3 / 4)
+          : ((IConstants.CELL_SIDE * 3) / (digits * 2));
+      int textOffset = (digits == 1) ? 0 : textSize / 20;
+
+      // spawning tiles are drawn slightly smaller
+      if (spawning) {
+        side = side * 7 / 8;
+        textSize = textSize * 7 / 8;
+        textOffset = textOffset * 7 / 8;
+      }
+
+      this.fillRect(g, x, y, side, side, tileColor);
+      this.drawText(g, Integer.toString(num), textSize, textColor, x - textOffset, y);
+    }
+  }
+
+  // fill a rectangle of the given size centered at the given position
+  void fillRect(Graphics2D g, int x, int y, int width, int height, Color color) {
+    g.setColor(color);
+    g.fillRect(x - width / 2, y - height / 2, width, height);
+  }
+
+  // draw bold text of the given size centered at the given position
+  void drawText(Graphics2D g, String text, int size, Color color, int x, int y) {
+    g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, size));
+    g.setColor(color);
+    FontMetrics metrics = g.getFontMetrics();
+    g.drawString(text, x - metrics.stringWidth(text) / 2,
+        y + (metrics.getAscent() - metrics.getDescent()) / 2);
+  }
+}
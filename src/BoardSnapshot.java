@@ -0,0 +1,49 @@
+// to represent an immutable copy of a board's tiles and scores at one moment,
+// safe to hand off to other threads for rendering
+final class BoardSnapshot {
+  final int[] nums; // tile numbers in row-major order, -1 for empty cells
+  final boolean[] spawning; // whether each tile was drawn mid-spawn
+
+  final int maxTile;
+  final int score;
+  final int best;
+
+  final boolean gameOver;
+  final boolean win;
+
+  // copy the current state of the given board
+  BoardSnapshot(Board board) {
+    this.nums = new int[IConstants.N_CELLS * IConstants.N_CELLS];
+    this.spawning = new boolean[IConstants.N_CELLS * IConstants.N_CELLS];
+
+    for (int i = 0; i < IConstants.N_CELLS; i++) {
+      for (int j = 0; j < IConstants.N_CELLS; j++) {
+        Tile cell = board.cells.get(i).get(j);
+        this.nums[this.index(i, j)] = cell.num;
+        this.spawning[this.index(i, j)] = cell.spawning;
+      }
+    }
+
+    this.maxTile = board.maxTile;
+    this.score = board.score;
+    this.best = board.best;
+
+    this.gameOver = board.gameOver;
+    this.win = board.win;
+  }
+
+  // to return the tile number at the given row and column, or -1 if empty
+  int num(int i, int j) {
+    return this.nums[this.index(i, j)];
+  }
+
+  // to determine whether the tile at the given row and column is spawning
+  boolean spawning(int i, int j) {
+    return this.spawning[this.index(i, j)];
+  }
+
+  // to convert a row and column to an index into the flattened grid
+  int index(int i, int j) {
+    return i * IConstants.N_CELLS + j;
+  }
+}
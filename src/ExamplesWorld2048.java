@@ -1,3 +1,17 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
 import tester.Tester;
 
 class ExamplesWorld2048 {
@@ -16,4 +30,218 @@ class ExamplesWorld2048 {
 
     board.bigBang(IConstants.GAMEBOARD_WIDTH, IConstants.GAMEBOARD_HEIGHT, 1/260);
   }
+
+  // test that the array engine plays exactly like the reference board
+  void testArrayEngine(Tester t) {
+    FuzzReport report = new MoveFuzzer(ArrayEngine::new).run(2048, 2000, 2);
+    t.checkExpect(report.failure, null);
+    t.checkExpect(report.cases, 2000L);
+  }
+
+  // test that the fuzzer catches an engine that ignores left moves,
+  // and shrinks the case down to one move on one tile
+  void testFuzzerShrinks(Tester t) {
+    FuzzReport report = new MoveFuzzer(() -> new ArrayEngine() {
+      public int move(String key) {
+        return key.equals("left") ? 0 : super.move(key);
+      }
+    }).run(2048, 2000, 2);
+
+    int tiles = 0;
+    for (int num : report.failure.fuzzCase.grid) {
+      if (num != -1) {
+        tiles++;
+      }
+    }
+    t.checkExpect(report.failure.fuzzCase.keys.size(), 1);
+    t.checkExpect(report.failure.fuzzCase.keys.get(0), "left");
+    t.checkExpect(tiles, 1);
+  }
+
+  // test that an engine that throws is reported as a failure and shrunk like a mismatch
+  void testFuzzerCatchesExceptions(Tester t) {
+    FuzzReport report = new MoveFuzzer(() -> new ArrayEngine() {
+      public int move(String key) {
+        if (key.equals("up")) {
+          throw new IllegalStateException("broken up move");
+        }
+        return super.move(key);
+      }
+    }).run(2048, 2000, 4);
+
+    t.checkExpect(report.failure.message.startsWith("threw"), true);
+    t.checkExpect(report.failure.step, 0);
+    t.checkExpect(report.failure.fuzzCase.keys.size(), 1);
+    t.checkExpect(report.failure.fuzzCase.keys.get(0), "up");
+  }
+
+  // test that a seeded run reports the same failure however many threads run it
+  void testFuzzerIsDeterministic(Tester t) {
+    MoveFuzzer fuzzer = new MoveFuzzer(() -> new ArrayEngine() {
+      public int move(String key) {
+        int events = super.move(key);
+        return (this.maxTile >= 64) ? 0 : events;
+      }
+    });
+
+    FuzzReport single = fuzzer.run(7, 5000, 1);
+    FuzzReport parallel = fuzzer.run(7, 5000, 8);
+    t.checkExpect(parallel.failure.toString(), single.failure.toString());
+  }
+
+  // test that a board publishes its moves, merges, and spawns in order
+  void testEventStream(Tester t) {
+    BoardEngine engine = new BoardEngine(0);
+    Board board = engine.board;
+    GameEventSubscriber subscriber = board.eventStream.subscribe();
+    engine.load(new int[] { 2, 2, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1 }, 0,
+        2);
+
+    board.onKeyEvent("left");
+
+    ArrayList<Long> events = new ArrayList<Long>();
+    t.checkExpect(subscriber.poll(events::add), 3);
+    t.checkExpect(events.get(0), GameEvent.merge(0, 0, 4));
+    t.checkExpect(events.get(1), GameEvent.move(GameEvent.LEFT, 1, 4));
+    t.checkExpect(GameEvent.type(events.get(2)), GameEvent.SPAWN);
+    t.checkExpect(subscriber.missed, 0L);
+  }
+
+  // test that a subscriber lapped by the producer skips what it missed
+  void testEventStreamOverrun(Tester t) {
+    GameEventStream stream = new GameEventStream(4);
+    GameEventSubscriber subscriber = stream.subscribe();
+    for (int k = 0; k < 10; k++) {
+      stream.publish(GameEvent.game(GameEvent.START, k));
+    }
+
+    ArrayList<Long> events = new ArrayList<Long>();
+    t.checkExpect(subscriber.poll(events::add), 3);
+    t.checkExpect(subscriber.missed, 7L);
+    t.checkExpect(GameEvent.score(events.get(0)), 7);
+    t.checkExpect(GameEvent.score(events.get(2)), 9);
+  }
+
+  // test that the spectator wall only repaints boards with a new snapshot
+  void testSpectatorWallRepaints(Tester t) {
+    SpectatorWall wall = new SpectatorWall(64, 8, 1.0 / 5);
+    SpectatedGame first = wall.games.get(0);
+
+    wall.makeScene();
+    t.checkExpect(wall.repaints, 64);
+    wall.makeScene();
+    t.checkExpect(wall.repaints, 64);
+
+    first.playMove();
+    first.latest.set(new BoardSnapshot(first.board));
+    wall.makeScene();
+    t.checkExpect(wall.repaints, 65);
+
+    // every board changes on every frame
+    for (int frame = 0; frame < 20; frame++) {
+      for (SpectatedGame game : wall.games) {
+        game.latest.set(new BoardSnapshot(game.board));
+      }
+      wall.makeScene();
+    }
+    t.checkExpect(wall.repaints, 65 + 20 * 64);
+
+    // and then none do
+    for (int frame = 0; frame < 20; frame++) {
+      wall.makeScene();
+    }
+    t.checkExpect(wall.repaints, 65 + 20 * 64);
+  }
+
+  // test that the latency histogram reports means and percentile bounds
+  void testLatencyHistogram(Tester t) {
+    LatencyHistogram histogram = new LatencyHistogram();
+    t.checkExpect(histogram.meanMillis(), 0.0);
+    t.checkExpect(histogram.percentileMillis(99), 0.0);
+
+    for (int k = 0; k < 99; k++) {
+      histogram.record(1000000); // 1 ms
+    }
+    histogram.record(100000000); // 100 ms
+
+    t.checkExpect(histogram.percentileMillis(50), (1L << 20) / 1e6);
+    t.checkExpect(histogram.percentileMillis(99), (1L << 20) / 1e6);
+    t.checkExpect(histogram.percentileMillis(100), (1L << 27) / 1e6);
+    t.checkExpect(histogram.meanMillis(), 1.99);
+  }
+
+  // test that a game played through key events replays exactly from its seed and key log,
+  // including restarts after a finished game
+  void testReplayLiveGame(Tester t) {
+    Board board = new Board();
+    String[] keys = { "up", "left", "down", "right" };
+    for (int k = 0; k < 2000; k++) {
+      board.onKeyEvent(keys[k % 3 + k / 997 % 2]);
+      board.checkGameOver();
+    }
+
+    ReplayExporter replay = new ReplayExporter(board);
+    BoardSnapshot last = replay.frames.get(replay.frames.size() - 1);
+    t.checkExpect(Arrays.equals(last.nums, new BoardSnapshot(board).nums), true);
+    t.checkExpect(last.score, board.score);
+    t.checkExpect(last.best, board.best);
+  }
+
+  // test that exported PNGs match the painter exactly, and that GIF frames keep every game
+  // color exactly, only moving anti-aliased edge pixels to the nearest palette color
+  void testReplayExport(Tester t) throws IOException {
+    ArrayList<String> keys = new ArrayList<String>(Arrays.asList("up", "up", "left", "right",
+        "down", "left", "up", "right"));
+    ReplayExporter exporter = new ReplayExporter(5, keys);
+    File dir = Files.createTempDirectory("replay").toFile();
+    BoardPainter painter = new BoardPainter();
+
+    exporter.exportPngs(dir);
+    BufferedImage png = ImageIO.read(new File(dir, "frame-00008.png"));
+    t.checkExpect(this.differentPixels(painter.render(exporter.frames.get(8), 1), png,
+        null), 0);
+
+    // the gif's parent directory doesn't exist yet
+    File gif = new File(dir, "gif/replay.gif");
+    exporter.exportGif(gif, 150);
+
+    HashSet<Integer> gameColors = new HashSet<Integer>();
+    IndexColorModel palette = exporter.palette();
+    for (int k = 0; k < 6 + IConstants.TILE_COLORS.size(); k++) {
+      gameColors.add(palette.getRGB(k) & 0xFFFFFF);
+    }
+
+    ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+    try (ImageInputStream in = ImageIO.createImageInputStream(gif)) {
+      reader.setInput(in);
+      t.checkExpect(reader.getNumImages(true), exporter.frames.size());
+
+      for (int n = 0; n < exporter.frames.size(); n++) {
+        BufferedImage expected = painter.render(exporter.frames.get(n), 1);
+        BufferedImage frame = reader.read(n);
+        t.checkExpect(this.differentPixels(expected, frame, gameColors), 0);
+        t.checkExpect(this.differentPixels(expected, frame, null)
+            < expected.getWidth() * expected.getHeight() / 50, true);
+      }
+    }
+    finally {
+      reader.dispose();
+    }
+  }
+
+  // to count the pixels that differ between the two images, only counting pixels whose
+  // expected color is in the given set, unless the set is null
+  int differentPixels(BufferedImage expected, BufferedImage actual, HashSet<Integer> colors) {
+    int count = 0;
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        int color = expected.getRGB(x, y) & 0xFFFFFF;
+        if ((colors == null || colors.contains(color))
+            && color != (actual.getRGB(x, y) & 0xFFFFFF)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
 }
@@ -0,0 +1,186 @@
+// Publish/subscribe stream of game events, backed by a preallocated ring buffer
+// that one game thread writes into and any number of observer threads read from.
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// to encode and decode game events packed into a single long, so publishing allocates nothing
+//   bits 60-63: type
+//   bits 48-59: direction (MOVE) or row (MERGE, SPAWN)
+//   bits 32-47: events (MOVE) or column (MERGE, SPAWN)
+//   bits  0-31: score delta (MOVE), tile value (MERGE, SPAWN), or score (START, WIN, LOSE)
+final class GameEvent {
+  // event types
+  static final int START = 0;
+  static final int MOVE = 1;
+  static final int MERGE = 2;
+  static final int SPAWN = 3;
+  static final int WIN = 4;
+  static final int LOSE = 5;
+
+  // move directions
+  static final int UP = 0;
+  static final int DOWN = 1;
+  static final int LEFT = 2;
+  static final int RIGHT = 3;
+
+  // to pack an event of the given type and fields into a long
+  static long encode(int type, int a, int b, int c) {
+    return ((long) type << 60) | ((long) (a & 0xFFF) << 48) | ((long) (b & 0xFFFF) << 32)
+        | (c & 0xFFFFFFFFL);
+  }
+
+  // to pack a MOVE event for the given direction, number of events, and score gained
+  static long move(int direction, int events, int scoreDelta) {
+    return encode(MOVE, direction, events, scoreDelta);
+  }
+
+  // to pack a MERGE event for a tile of the given value formed at the given cell
+  static long merge(int row, int col, int value) {
+    return encode(MERGE, row, col, value);
+  }
+
+  // to pack a SPAWN event for a tile of the given value spawned at the given cell
+  static long spawn(int row, int col, int value) {
+    return encode(SPAWN, row, col, value);
+  }
+
+  // to pack a START, WIN, or LOSE event with the given score
+  static long game(int type, int score) {
+    return encode(type, 0, 0, score);
+  }
+
+  // to return the type of any event
+  static int type(long event) {
+    return (int) (event >>> 60);
+  }
+
+  // to return the direction of a MOVE event
+  static int direction(long event) {
+    return (int) (event >>> 48) & 0xFFF;
+  }
+
+  // to return the row of a MERGE or SPAWN event
+  static int row(long event) {
+    return (int) (event >>> 48) & 0xFFF;
+  }
+
+  // to return the number of events (moves or combinations) in a MOVE event
+  static int events(long event) {
+    return (int) (event >>> 32) & 0xFFFF;
+  }
+
+  // to return the column of a MERGE or SPAWN event
+  static int col(long event) {
+    return (int) (event >>> 32) & 0xFFFF;
+  }
+
+  // to return the score gained by a MOVE event
+  static int scoreDelta(long event) {
+    return (int) event;
+  }
+
+  // to return the tile value of a MERGE or SPAWN event
+  static int value(long event) {
+    return (int) event;
+  }
+
+  // to return the score at a START, WIN, or LOSE event
+  static int score(long event) {
+    return (int) event;
+  }
+}
+
+// to handle events read from a game event stream
+interface IGameEventHandler {
+  // handle one encoded event
+  void onEvent(long event);
+}
+
+// to represent a single-producer, multi-consumer ring buffer of encoded game events;
+// the producer never blocks, so a subscriber that falls a whole buffer behind skips
+// the events it missed
+class GameEventStream {
+  AtomicLongArray slots;
+  int mask;
+
+  long next; // sequence number of the next event, only touched by the producer
+  AtomicLong published; // number of events visible to subscribers
+
+  // a stream holding the given number of events, which must be a power of two
+  GameEventStream(int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+    }
+    this.slots = new AtomicLongArray(capacity);
+    this.mask = capacity - 1;
+    this.next = 0;
+    this.published = new AtomicLong();
+  }
+
+  // to append the given event; only ever called from the game thread
+  void publish(long event) {
+    long seq = this.next++;
+    // the slot write is ordered after the previous publish, so a subscriber that sees
+    // an overwritten slot also sees a sequence count that tells it the slot was reused
+    this.slots.set((int) (seq & this.mask), event);
+    this.published.set(seq + 1);
+  }
+
+  // to return a new subscriber that will see every event published from now on
+  GameEventSubscriber subscribe() {
+    return new GameEventSubscriber(this, this.published.get());
+  }
+
+  // to return the number of events the stream holds before it overwrites the oldest
+  int capacity() {
+    return this.mask + 1;
+  }
+}
+
+// to represent one consumer's position in a game event stream; each subscriber
+// should only be polled from one thread at a time
+class GameEventSubscriber {
+  GameEventStream stream;
+  long next; // sequence number of the next event to read
+  long missed; // events overwritten before this subscriber could read them
+
+  // a subscriber that reads the given stream from the given sequence number
+  GameEventSubscriber(GameEventStream stream, long next) {
+    this.stream = stream;
+    this.next = next;
+    this.missed = 0;
+  }
+
+  // hand up to the given number of waiting events to the handler, without blocking,
+  // and return how many were handled
+  int poll(IGameEventHandler handler, int limit) {
+    int count = 0;
+    long available = this.stream.published.get();
+
+    while (count < limit && this.next < available) {
+      long event = this.stream.slots.get((int) (this.next & this.stream.mask));
+
+      // if the producer has come back around to this slot, the event may be gone
+      long published = this.stream.published.get();
+      if (published - this.next >= this.stream.capacity()) {
+        long oldest = published - this.stream.capacity() + 1;
+        this.missed += oldest - this.next;
+        this.next = oldest;
+        available = published;
+      }
+      else {
+        handler.onEvent(event);
+        this.next++;
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  // hand every waiting event to the handler and return how many were handled
+  int poll(IGameEventHandler handler) {
+    return this.poll(handler, Integer.MAX_VALUE);
+  }
+}
@@ -0,0 +1,235 @@
+// Hot-path instrumentation for Board: JFR events for moves, spawns, and renders,
+// and JMX counters and latency histograms. The JFR events cost nothing unless a recording
+// enables them; the JMX counters are compiled away unless -Dgame2048.stats=true is set.
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for one move, timed from the key press to the end of the tile movement
+@Name("game2048.Move")
+@Label("Move")
+@Category("2048")
+class MoveEvent extends Event {
+  @Label("Direction")
+  String direction;
+
+  @Label("Events")
+  int events;
+
+  @Label("Score Delta")
+  int scoreDelta;
+}
+
+// JFR event for a tile spawned onto the board
+@Name("game2048.Spawn")
+@Label("Spawn")
+@Category("2048")
+class SpawnEvent extends Event {
+  @Label("Row")
+  int row;
+
+  @Label("Column")
+  int col;
+
+  @Label("Value")
+  int value;
+}
+
+// JFR event for one call to Board.makeScene
+@Name("game2048.Render")
+@Label("Render")
+@Category("2048")
+class RenderEvent extends Event {
+}
+
+// to record latencies into power-of-two nanosecond buckets, cheap enough to update
+// from the game loop and safe to read from JMX threads
+class LatencyHistogram {
+  AtomicLongArray buckets; // bucket k counts latencies in [2^(k-1), 2^k) nanoseconds
+  LongAdder count;
+  LongAdder totalNanos;
+
+  LatencyHistogram() {
+    this.buckets = new AtomicLongArray(64);
+    this.count = new LongAdder();
+    this.totalNanos = new LongAdder();
+  }
+
+  // record one latency of the given number of nanoseconds
+  void record(long nanos) {
+    this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    this.count.increment();
+    this.totalNanos.add(nanos);
+  }
+
+  // to return the mean latency in milliseconds, or 0 if nothing was recorded
+  double meanMillis() {
+    long count = this.count.sum();
+    return (count == 0) ? 0 : this.totalNanos.sum() / (count * 1e6);
+  }
+
+  // to return an upper bound on the given percentile (0 to 100) latency in milliseconds,
+  // accurate to within a factor of two, or 0 if nothing was recorded
+  double percentileMillis(double percentile) {
+    long total = 0;
+    for (int k = 0; k < this.buckets.length(); k++) {
+      total += this.buckets.get(k);
+    }
+
+    long seen = 0;
+    for (int k = 0; k < this.buckets.length(); k++) {
+      seen += this.buckets.get(k);
+      if (seen > 0 && seen >= total * percentile / 100) {
+        return (1L << k) / 1e6;
+      }
+    }
+    return 0;
+  }
+
+  void reset() {
+    for (int k = 0; k < this.buckets.length(); k++) {
+      this.buckets.set(k, 0);
+    }
+    this.count.reset();
+    this.totalNanos.reset();
+  }
+}
+
+// to count what the game does, for the JMX bean; every Board reports into the one instance
+class GameStats implements GameStatsMBean {
+  static final boolean ENABLED = Boolean.getBoolean("game2048.stats");
+  static final GameStats INSTANCE = (ENABLED) ? new GameStats().register() : null;
+
+  LatencyHistogram moves;
+  LatencyHistogram renders;
+  LongAdder movesLeftCalls;
+  LongAdder gamesStarted;
+  LongAdder gamesFinished;
+  volatile long resetNanos; // when the counters were last cleared
+
+  GameStats() {
+    this.moves = new LatencyHistogram();
+    this.renders = new LatencyHistogram();
+    this.movesLeftCalls = new LongAdder();
+    this.gamesStarted = new LongAdder();
+    this.gamesFinished = new LongAdder();
+    this.resetNanos = System.nanoTime();
+  }
+
+  // register this as the game2048:type=GameStats bean on the platform MBean server
+  GameStats register() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+          new ObjectName("game2048:type=GameStats"));
+    }
+    catch (JMException e) {
+      throw new IllegalStateException("Could not register the game stats MBean", e);
+    }
+    return this;
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+   *                        RECORDING (no-ops when not ENABLED)                        *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  // to return the start time of a timed section, or 0 if stats are off
+  static long start() {
+    return (ENABLED) ? System.nanoTime() : 0;
+  }
+
+  // record a move that started at the given time
+  static void moved(long start) {
+    if (ENABLED) {
+      INSTANCE.moves.record(System.nanoTime() - start);
+    }
+  }
+
+  // record a render that started at the given time
+  static void rendered(long start) {
+    if (ENABLED) {
+      INSTANCE.renders.record(System.nanoTime() - start);
+    }
+  }
+
+  static void movesLeftChecked() {
+    if (ENABLED) {
+      INSTANCE.movesLeftCalls.increment();
+    }
+  }
+
+  static void gameStarted() {
+    if (ENABLED) {
+      INSTANCE.gamesStarted.increment();
+    }
+  }
+
+  static void gameFinished() {
+    if (ENABLED) {
+      INSTANCE.gamesFinished.increment();
+    }
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+   *                                  MBEAN METHODS                                    *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  public long getMoves() {
+    return this.moves.count.sum();
+  }
+
+  // average since the counters were last reset
+  public double getMovesPerSecond() {
+    double seconds = (System.nanoTime() - this.resetNanos) / 1e9;
+    return (seconds <= 0) ? 0 : this.getMoves() / seconds;
+  }
+
+  public double getMeanMoveMillis() {
+    return this.moves.meanMillis();
+  }
+
+  public double getP99MoveMillis() {
+    return this.moves.percentileMillis(99);
+  }
+
+  public long getRenders() {
+    return this.renders.count.sum();
+  }
+
+  public double getMeanRenderMillis() {
+    return this.renders.meanMillis();
+  }
+
+  public double getP99RenderMillis() {
+    return this.renders.percentileMillis(99);
+  }
+
+  public long getMovesLeftCalls() {
+    return this.movesLeftCalls.sum();
+  }
+
+  public long getGamesStarted() {
+    return this.gamesStarted.sum();
+  }
+
+  public long getGamesFinished() {
+    return this.gamesFinished.sum();
+  }
+
+  public void reset() {
+    this.moves.reset();
+    this.renders.reset();
+    this.movesLeftCalls.reset();
+    this.gamesStarted.reset();
+    this.gamesFinished.reset();
+    this.resetNanos = System.nanoTime();
+  }
+}
@@ -0,0 +1,26 @@
+// JMX view of the game's cumulative counters and latencies, registered as
+// game2048:type=GameStats when the game is started with -Dgame2048.stats=true.
+public interface GameStatsMBean {
+  long getMoves();
+
+  double getMovesPerSecond();
+
+  double getMeanMoveMillis();
+
+  double getP99MoveMillis();
+
+  long getRenders();
+
+  double getMeanRenderMillis();
+
+  double getP99RenderMillis();
+
+  long getMovesLeftCalls();
+
+  long getGamesStarted();
+
+  long getGamesFinished();
+
+  // clear every counter and histogram
+  void reset();
+}
@@ -0,0 +1,240 @@
+// Move engines that can be checked against the reference Board by MoveFuzzer.
+
+import java.util.ArrayList;
+
+import javalib.worldimages.Posn;
+
+// to represent an implementation of the 2048 tile rules, without any drawing
+interface IMoveEngine {
+  // replace the whole board with the given row-major grid (-1 for empty cells),
+  // score, and max tile
+  void load(int[] grid, int score, int maxTile);
+
+  // move the tiles in the given direction ("up", "down", "left", "right")
+  // and return the number of events (moves or combinations) that happened
+  int move(String key);
+
+  // put a new tile with the given value into the given (empty) cell
+  void spawnTile(int i, int j, int value);
+
+  // to determine whether the player still has moves to play on a full board
+  boolean movesLeft();
+
+  // to return a row-major copy of the grid, -1 for empty cells
+  int[] grid();
+
+  int score();
+
+  int maxTile();
+}
+
+// to adapt the reference Board to the engine interface
+class BoardEngine implements IMoveEngine {
+  Board board;
+
+  // the reference board, spawning tiles from the given seed
+  BoardEngine(long seed) {
+    this.board = new Board(seed);
+  }
+
+  public void load(int[] grid, int score, int maxTile) {
+    this.board.cells = new ArrayList<ArrayList<Tile>>(IConstants.N_CELLS);
+    this.board.emptyPosns = new ArrayList<Posn>(IConstants.N_CELLS * IConstants.N_CELLS);
+
+    for (int i = 0; i < IConstants.N_CELLS; i++) {
+      ArrayList<Tile> row = new ArrayList<Tile>(IConstants.N_CELLS);
+      for (int j = 0; j < IConstants.N_CELLS; j++) {
+        int num = grid[i * IConstants.N_CELLS + j];
+        if (num == -1) {
+          row.add(new Tile());
+          this.board.emptyPosns.add(new Posn(i, j));
+        }
+        else {
+          row.add(new Tile(num));
+        }
+      }
+      this.board.cells.add(row);
+    }
+
+    this.board.score = score;
+    this.board.maxTile = maxTile;
+    this.board.gameOver = false;
+    this.board.win = false;
+  }
+
+  public int move(String key) {
+    switch (key) {
+    case "up":
+      return this.board.moveTilesUp();
+    case "down":
+      return this.board.moveTilesDown();
+    case "left":
+      return this.board.moveTilesLeft();
+    case "right":
+      return this.board.moveTilesRight();
+    default:
+      throw new IllegalArgumentException("Unknown move: " + key);
+    }
+  }
+
+  public void spawnTile(int i, int j, int value) {
+    this.board.cells.get(i).set(j, new Tile(value));
+    this.board.emptyPosns.remove(new Posn(i, j));
+  }
+
+  // spawn a tile the way Board.onKeyEvent does, using the board's own random source,
+  // and return the row-major index it landed on (or -1 if no empty cell got it)
+  int spawnRandomTile() {
+    int[] before = this.grid();
+    this.board.spawnTile(this.board.rand.nextInt(2) * 2 + 2);
+    int[] after = this.grid();
+
+    for (int k = 0; k < before.length; k++) {
+      if (before[k] == -1 && after[k] != -1) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  public boolean movesLeft() {
+    return this.board.movesLeft();
+  }
+
+  public int[] grid() {
+    int[] grid = new int[IConstants.N_CELLS * IConstants.N_CELLS];
+    for (int i = 0; i < IConstants.N_CELLS; i++) {
+      for (int j = 0; j < IConstants.N_CELLS; j++) {
+        grid[i * IConstants.N_CELLS + j] = this.board.cells.get(i).get(j).num;
+      }
+    }
+    return grid;
+  }
+
+  public int score() {
+    return this.board.score;
+  }
+
+  public int maxTile() {
+    return this.board.maxTile;
+  }
+}
+
+// to represent the Board tile rules on a flat int array, with no allocation per move
+class ArrayEngine implements IMoveEngine {
+  int[] cells; // row-major tile numbers, -1 for empty cells
+  int score;
+  int maxTile;
+
+  ArrayEngine() {
+    this.cells = new int[IConstants.N_CELLS * IConstants.N_CELLS];
+  }
+
+  public void load(int[] grid, int score, int maxTile) {
+    System.arraycopy(grid, 0, this.cells, 0, this.cells.length);
+    this.score = score;
+    this.maxTile = maxTile;
+  }
+
+  public int move(String key) {
+    int events = 0;
+    for (int line = 0; line < IConstants.N_CELLS; line++) {
+      switch (key) {
+      case "up":
+        events += this.slide(line, IConstants.N_CELLS);
+        break;
+      case "down":
+        events += this.slide((IConstants.N_CELLS - 1) * IConstants.N_CELLS + line,
+            -IConstants.N_CELLS);
+        break;
+      case "left":
+        events += this.slide(line * IConstants.N_CELLS, 1);
+        break;
+      case "right":
+        events += this.slide(line * IConstants.N_CELLS + IConstants.N_CELLS - 1, -1);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown move: " + key);
+      }
+    }
+    return events;
+  }
+
+  // slide one line of cells towards its front cell at the given index, where each next
+  // cell is the given step further back; follows the same scan as Board.moveTilesUp,
+  // including re-checking a moved tile for combination
+  // return the number of events (moves or combinations) that happen
+  int slide(int front, int step) {
+    int events = 0;
+
+    for (int k = 1; k < IConstants.N_CELLS; k++) {
+      int here = front + k * step;
+      int tile = this.cells[here];
+
+      if (tile != -1) {
+        int ahead = this.cells[here - step];
+
+        // the front-most empty cell this tile can move to
+        int newK = k;
+        while (newK > 0 && this.cells[front + (newK - 1) * step] == -1) {
+          newK--;
+        }
+
+        if (newK != k) {
+          this.cells[front + newK * step] = tile;
+          this.cells[here] = -1;
+
+          if (newK != 0) {
+            k = newK - 1; // sub 1 to cancel out k++
+          }
+
+          events++;
+        }
+        else if (tile == ahead) {
+          int combinedNum = tile + ahead;
+          if (combinedNum > this.maxTile) {
+            this.maxTile = combinedNum;
+          }
+          this.score += combinedNum;
+
+          this.cells[here - step] = combinedNum;
+          this.cells[here] = -1;
+
+          events++;
+        }
+      }
+    }
+
+    return events;
+  }
+
+  public void spawnTile(int i, int j, int value) {
+    this.cells[i * IConstants.N_CELLS + j] = value;
+  }
+
+  public boolean movesLeft() {
+    for (int i = 0; i < IConstants.N_CELLS; i++) {
+      for (int j = 0; j < IConstants.N_CELLS; j++) {
+        int num = this.cells[i * IConstants.N_CELLS + j];
+        if ((j + 1 < IConstants.N_CELLS && num == this.cells[i * IConstants.N_CELLS + j + 1])
+            || (i + 1 < IConstants.N_CELLS
+                && num == this.cells[(i + 1) * IConstants.N_CELLS + j])) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  public int[] grid() {
+    return this.cells.clone();
+  }
+
+  public int score() {
+    return this.score;
+  }
+
+  public int maxTile() {
+    return this.maxTile;
+  }
+}
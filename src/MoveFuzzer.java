@@ -0,0 +1,336 @@
+// Seeded differential fuzzer that drives the reference Board and another move engine
+// with identical random boards and move sequences, and shrinks any mismatch it finds.
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javalib.worldimages.Posn;
+
+// to represent one fuzz case: a starting grid and the moves to play on it
+class FuzzCase {
+  static final String[] KEYS = { "up", "down", "left", "right" };
+
+  long seed; // seeds the reference board's spawns
+  int[] grid; // row-major tile numbers, -1 for empty cells
+  ArrayList<String> keys;
+
+  FuzzCase(long seed, int[] grid, ArrayList<String> keys) {
+    this.seed = seed;
+    this.grid = grid;
+    this.keys = keys;
+  }
+
+  // a random case generated from the given seed
+  FuzzCase(long seed) {
+    Random rand = new Random(seed);
+    this.seed = seed;
+    this.grid = new int[IConstants.N_CELLS * IConstants.N_CELLS];
+    for (int k = 0; k < this.grid.length; k++) {
+      // about a third of the cells empty, and mostly small tiles so merges are common
+      this.grid[k] = (rand.nextInt(3) == 0) ? -1 : 2 << rand.nextInt(1 + rand.nextInt(10));
+    }
+
+    int length = 1 + rand.nextInt(40);
+    this.keys = new ArrayList<String>(length);
+    for (int k = 0; k < length; k++) {
+      this.keys.add(KEYS[rand.nextInt(KEYS.length)]);
+    }
+  }
+
+  // to return the max tile on the starting grid (at least 2, as on a new board)
+  int maxTile() {
+    int max = 2;
+    for (int num : this.grid) {
+      max = Math.max(max, num);
+    }
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("seed " + this.seed + ", moves " + this.keys + "\n");
+    for (int i = 0; i < IConstants.N_CELLS; i++) {
+      for (int j = 0; j < IConstants.N_CELLS; j++) {
+        int num = this.grid[i * IConstants.N_CELLS + j];
+        sb.append(String.format("%6s", (num == -1) ? "." : Integer.toString(num)));
+      }
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+}
+
+// to represent a mismatch found by the fuzzer
+class FuzzFailure {
+  FuzzCase fuzzCase;
+  int step; // index of the move after which the engines disagreed, -1 for the starting grid
+  String message;
+
+  FuzzFailure(FuzzCase fuzzCase, int step, String message) {
+    this.fuzzCase = fuzzCase;
+    this.step = step;
+    this.message = message;
+  }
+
+  @Override
+  public String toString() {
+    return "after move " + this.step + ": " + this.message + "\n" + this.fuzzCase;
+  }
+}
+
+// to represent the outcome of a fuzzing run
+class FuzzReport {
+  long cases;
+  long nanos;
+  FuzzFailure failure; // the shrunk first failure, or null if every case matched
+
+  FuzzReport(long cases, long nanos, FuzzFailure failure) {
+    this.cases = cases;
+    this.nanos = nanos;
+    this.failure = failure;
+  }
+
+  // to return the number of cases checked per second
+  double casesPerSecond() {
+    return this.cases / Math.max(1e-9, this.nanos / 1e9);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d cases in %.2fs (%.0f cases/sec): %s", this.cases, this.nanos / 1e9,
+        this.casesPerSecond(), (this.failure == null) ? "no mismatches" : this.failure);
+  }
+}
+
+// to compare an engine against the reference Board on many random cases
+class MoveFuzzer {
+  Supplier<IMoveEngine> candidates; // makes a fresh engine under test for each case
+
+  MoveFuzzer(Supplier<IMoveEngine> candidates) {
+    this.candidates = candidates;
+  }
+
+  // run the given number of cases, derived from the given seed, across the given number
+  // of threads; stop at the lowest-numbered mismatching case and shrink it before reporting,
+  // so the same seed always reports the same failure
+  FuzzReport run(long seed, long cases, int threads) {
+    AtomicLong next = new AtomicLong();
+    AtomicLong done = new AtomicLong();
+    AtomicLong firstFailing = new AtomicLong(Long.MAX_VALUE);
+    long start = System.nanoTime();
+
+    // cases are claimed in order, so every case below the first failing one still runs
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ArrayList<Future<?>> workers = new ArrayList<Future<?>>(threads);
+    for (int t = 0; t < threads; t++) {
+      workers.add(pool.submit(() -> {
+        for (long n = next.getAndIncrement(); n < cases && n < firstFailing.get(); n = next
+            .getAndIncrement()) {
+          if (this.check(this.caseAt(seed, n)) != null) {
+            firstFailing.accumulateAndGet(n, Math::min);
+          }
+          done.incrementAndGet();
+        }
+      }));
+    }
+    pool.shutdown();
+
+    try {
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException("Fuzz worker died", e.getCause());
+    }
+    catch (InterruptedException e) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted after " + done.get() + " cases", e);
+    }
+
+    long nanos = System.nanoTime() - start;
+    if (firstFailing.get() == Long.MAX_VALUE) {
+      if (done.get() < cases) {
+        throw new IllegalStateException("Only " + done.get() + " of " + cases + " cases ran");
+      }
+      return new FuzzReport(done.get(), nanos, null);
+    }
+
+    FuzzCase failing = this.caseAt(seed, firstFailing.get());
+    FuzzFailure failure = this.check(failing);
+    if (failure == null) {
+      // only a nondeterministic engine passes a case it has already failed
+      return new FuzzReport(done.get(), nanos,
+          new FuzzFailure(failing, -1, "failed once, then passed when rechecked"));
+    }
+    return new FuzzReport(done.get(), nanos, this.shrink(failure));
+  }
+
+  // to return the case with the given number in the run derived from the given seed
+  FuzzCase caseAt(long seed, long n) {
+    return new FuzzCase(seed * 0x9E3779B97F4A7C15L + n);
+  }
+
+  // play the given case on the reference and a fresh candidate engine, and return the first
+  // mismatch or exception, or null if they agree throughout
+  FuzzFailure check(FuzzCase fuzzCase) {
+    int step = -1;
+    try {
+      BoardEngine reference = new BoardEngine(fuzzCase.seed);
+      IMoveEngine candidate = this.candidates.get();
+      reference.load(fuzzCase.grid, 0, fuzzCase.maxTile());
+      candidate.load(fuzzCase.grid, 0, fuzzCase.maxTile());
+
+      String mismatch = this.compare(reference, candidate);
+      if (mismatch != null) {
+        return new FuzzFailure(fuzzCase, step, mismatch);
+      }
+
+      for (step = 0; step < fuzzCase.keys.size(); step++) {
+        String key = fuzzCase.keys.get(step);
+        boolean referenceMoved = reference.move(key) > 0;
+        boolean candidateMoved = candidate.move(key) > 0;
+
+        if (referenceMoved != candidateMoved) {
+          mismatch = key + " moved: reference " + referenceMoved + ", candidate "
+              + candidateMoved;
+        }
+        else if (referenceMoved && reference.board.emptyPosns.size() > 0) {
+          // let the reference pick the spawn, and put the same tile on the candidate
+          int index = reference.spawnRandomTile();
+          if (index == -1) {
+            mismatch = "reference spawned onto a cell that wasn't empty";
+          }
+          else {
+            candidate.spawnTile(index / IConstants.N_CELLS, index % IConstants.N_CELLS,
+                reference.grid()[index]);
+          }
+        }
+
+        if (mismatch == null) {
+          mismatch = this.compare(reference, candidate);
+        }
+        if (mismatch != null) {
+          return new FuzzFailure(fuzzCase, step, mismatch);
+        }
+      }
+    }
+    catch (RuntimeException e) {
+      // a crashing engine is a divergence too, and shrinks like any other
+      StackTraceElement[] trace = e.getStackTrace();
+      return new FuzzFailure(fuzzCase, step,
+          "threw " + e + ((trace.length > 0) ? " at " + trace[0] : ""));
+    }
+
+    return null;
+  }
+
+  // to describe the first difference between the two engines' states, or return null
+  String compare(BoardEngine reference, IMoveEngine candidate) {
+    int[] expected = reference.grid();
+    int[] actual = candidate.grid();
+
+    if (!Arrays.equals(expected, actual)) {
+      return "grid: reference " + Arrays.toString(expected) + ", candidate "
+          + Arrays.toString(actual);
+    }
+    if (reference.score() != candidate.score()) {
+      return "score: reference " + reference.score() + ", candidate " + candidate.score();
+    }
+    if (reference.maxTile() != candidate.maxTile()) {
+      return "maxTile: reference " + reference.maxTile() + ", candidate "
+          + candidate.maxTile();
+    }
+
+    // the reference's empty positions must match its empty cells, or spawns go astray
+    ArrayList<Posn> empty = new ArrayList<Posn>();
+    for (int k = 0; k < expected.length; k++) {
+      if (expected[k] == -1) {
+        empty.add(new Posn(k / IConstants.N_CELLS, k % IConstants.N_CELLS));
+      }
+    }
+    List<Posn> emptyPosns = reference.board.emptyPosns;
+    if (emptyPosns.size() != empty.size() || !emptyPosns.containsAll(empty)) {
+      return "reference emptyPosns out of sync: " + emptyPosns.size() + " positions for "
+          + empty.size() + " empty cells";
+    }
+
+    // the game only asks about moves left once the board is full
+    if (empty.isEmpty() && reference.movesLeft() != candidate.movesLeft()) {
+      return "movesLeft: reference " + reference.movesLeft() + ", candidate "
+          + candidate.movesLeft();
+    }
+
+    return null;
+  }
+
+  // to shrink the given failure towards a minimal case by dropping moves, emptying cells,
+  // and halving tiles for as long as the case keeps failing
+  FuzzFailure shrink(FuzzFailure failure) {
+    FuzzFailure smallest = failure;
+
+    // nothing after the failing move matters
+    ArrayList<String> prefix = new ArrayList<String>(
+        smallest.fuzzCase.keys.subList(0, Math.max(0, smallest.step + 1)));
+    smallest = this.orSmaller(smallest,
+        new FuzzCase(smallest.fuzzCase.seed, smallest.fuzzCase.grid, prefix));
+
+    boolean shrunk = true;
+    while (shrunk) {
+      shrunk = false;
+      FuzzCase current = smallest.fuzzCase;
+
+      for (int k = 0; k < current.keys.size() && !shrunk; k++) {
+        ArrayList<String> keys = new ArrayList<String>(current.keys);
+        keys.remove(k);
+        FuzzFailure next = this.orSmaller(smallest, new FuzzCase(current.seed, current.grid,
+            keys));
+        shrunk = next != smallest;
+        smallest = next;
+      }
+
+      for (int k = 0; k < current.grid.length && !shrunk; k++) {
+        if (current.grid[k] != -1) {
+          int[] grid = current.grid.clone();
+          grid[k] = (grid[k] > 2) ? grid[k] / 2 : -1;
+          FuzzFailure next = this.orSmaller(smallest, new FuzzCase(current.seed, grid,
+              current.keys));
+          shrunk = next != smallest;
+          smallest = next;
+        }
+      }
+    }
+
+    return smallest;
+  }
+
+  // to return the failure of the given case if it still fails, or the given failure if not
+  FuzzFailure orSmaller(FuzzFailure failure, FuzzCase smaller) {
+    FuzzFailure next = this.check(smaller);
+    return (next == null) ? failure : next;
+  }
+
+  // fuzz the array engine against the reference board:
+  //   MoveFuzzer [seed] [cases]
+  public static void main(String[] args) {
+    long seed = (args.length > 0) ? Long.parseLong(args[0]) : System.nanoTime();
+    long cases = (args.length > 1) ? Long.parseLong(args[1]) : 1000000;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    System.out.println("seed " + seed + ", " + threads + " threads");
+    FuzzReport report = new MoveFuzzer(ArrayEngine::new).run(seed, cases, threads);
+    System.out.println(report);
+    if (report.failure != null) {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,320 @@
+// Headless exporter that replays a game's moves and renders each frame
+// to a PNG sequence or an animated GIF, without opening a window.
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+// to replay a seeded game and export its frames as images
+class ReplayExporter {
+  Board board; // the board the moves are replayed on
+  ArrayList<BoardSnapshot> frames; // one frame per board state, starting with the initial one
+  BoardPainter painter;
+
+  // replay the given keys ("up", "down", "left", "right", or "enter" to restart a finished
+  // game) on a board seeded with the given seed
+  ReplayExporter(long seed, List<String> keys) {
+    this.board = new Board(seed);
+    this.painter = new BoardPainter();
+    this.frames = new ArrayList<BoardSnapshot>(keys.size() + 1);
+    this.recordFrame();
+
+    for (String key : keys) {
+      this.board.onKeyEvent(key);
+      this.board.checkGameOver(); // as the next makeScene would
+      this.recordFrame();
+    }
+  }
+
+  // replay a game played in the window, from its seed and key log
+  ReplayExporter(Board played) {
+    this(played.seed, played.keyLog);
+  }
+
+  // snapshot the board, then clear its spawn flags as Tile.draw would on screen
+  void recordFrame() {
+    this.frames.add(new BoardSnapshot(this.board));
+
+    for (ArrayList<Tile> row : this.board.cells) {
+      for (Tile cell : row) {
+        cell.spawning = false;
+      }
+    }
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+   *                                   EXPORTING                                       *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  // render and write every frame as frame-00000.png, frame-00001.png, ... into the given
+  // directory; frames are rendered and encoded in parallel across cores
+  void exportPngs(File dir) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create directory " + dir);
+    }
+
+    try {
+      IntStream.range(0, this.frames.size()).parallel().forEach(n -> {
+        BufferedImage image = this.painter.render(this.frames.get(n), 1);
+        File file = new File(dir, String.format("frame-%05d.png", n));
+        try {
+          ImageIO.write(image, "png", file);
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  // render every frame and write them as a looping animated GIF, showing each frame for
+  // the given number of milliseconds; frames are rendered and mapped onto the palette in
+  // parallel, leaving only the GIF compression itself on the calling thread
+  void exportGif(File file, int frameMillis) throws IOException {
+    File dir = file.getAbsoluteFile().getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create directory " + dir);
+    }
+
+    IndexColorModel palette = this.palette();
+    BufferedImage[] images = new BufferedImage[this.frames.size()];
+
+    IntStream.range(0, images.length).parallel().forEach(n -> {
+      images[n] = this.toIndexed(this.painter.render(this.frames.get(n), 1), palette);
+    });
+
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+    ImageWriteParam param = writer.getDefaultWriteParam();
+    IIOMetadata streamMetadata = this.gifStreamMetadata(writer, param, palette);
+    IIOMetadata metadata = this.gifMetadata(writer, param, images[0], frameMillis);
+
+    try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+      if (out == null) {
+        throw new IOException("Could not open " + file + " for writing");
+      }
+      writer.setOutput(out);
+      writer.prepareWriteSequence(streamMetadata);
+      for (BufferedImage image : images) {
+        writer.writeToSequence(new IIOImage(image, null, metadata), param);
+      }
+      writer.endWriteSequence();
+    }
+    finally {
+      writer.dispose();
+    }
+  }
+
+  // to map every pixel of the given image onto the given palette: game colors map to their
+  // exact entry, and any other color (an anti-aliased edge) to the nearest entry; drawing
+  // onto an indexed image instead would let Java2D's coarse color lookup shift game colors
+  BufferedImage toIndexed(BufferedImage rgb, IndexColorModel palette) {
+    HashMap<Integer, Integer> indices = new HashMap<Integer, Integer>();
+    for (int k = palette.getMapSize() - 1; k >= 0; k--) {
+      indices.put(palette.getRGB(k) & 0xFFFFFF, k); // the lowest index wins for duplicates
+    }
+
+    BufferedImage indexed = new BufferedImage(rgb.getWidth(), rgb.getHeight(),
+        BufferedImage.TYPE_BYTE_INDEXED, palette);
+    WritableRaster raster = indexed.getRaster();
+    for (int y = 0; y < rgb.getHeight(); y++) {
+      for (int x = 0; x < rgb.getWidth(); x++) {
+        int color = rgb.getRGB(x, y) & 0xFFFFFF;
+        Integer index = indices.get(color);
+        if (index == null) {
+          index = this.nearest(palette, color);
+          indices.put(color, index);
+        }
+        raster.setSample(x, y, 0, index);
+      }
+    }
+    return indexed;
+  }
+
+  // to return the index of the palette entry closest to the given RGB color
+  int nearest(IndexColorModel palette, int color) {
+    int best = 0;
+    int bestDistance = Integer.MAX_VALUE;
+    for (int k = 0; k < palette.getMapSize(); k++) {
+      int dr = palette.getRed(k) - ((color >> 16) & 0xFF);
+      int dg = palette.getGreen(k) - ((color >> 8) & 0xFF);
+      int db = palette.getBlue(k) - (color & 0xFF);
+      int distance = dr * dr + dg * dg + db * db;
+      if (distance < bestDistance) {
+        best = k;
+        bestDistance = distance;
+      }
+    }
+    return best;
+  }
+
+  // build the GIF stream metadata, with the given palette as the global color table
+  // that every frame's indices refer to
+  IIOMetadata gifStreamMetadata(ImageWriter writer, ImageWriteParam param,
+      IndexColorModel palette) throws IOException {
+    IIOMetadata metadata = writer.getDefaultStreamMetadata(param);
+    String format = metadata.getNativeMetadataFormatName();
+    IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+    IIOMetadataNode table = new IIOMetadataNode("GlobalColorTable");
+    table.setAttribute("sizeOfGlobalColorTable", Integer.toString(palette.getMapSize()));
+    table.setAttribute("backgroundColorIndex", "0");
+    table.setAttribute("sortFlag", "FALSE");
+    for (int k = 0; k < palette.getMapSize(); k++) {
+      IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+      entry.setAttribute("index", Integer.toString(k));
+      entry.setAttribute("red", Integer.toString(palette.getRed(k)));
+      entry.setAttribute("green", Integer.toString(palette.getGreen(k)));
+      entry.setAttribute("blue", Integer.toString(palette.getBlue(k)));
+      table.appendChild(entry);
+    }
+
+    this.removeChildren(root, "GlobalColorTable"); // the writer's default web palette
+    root.appendChild(table);
+
+    metadata.setFromTree(format, root);
+    return metadata;
+  }
+
+  // build the per-frame GIF metadata: the frame delay, and a loop-forever extension;
+  // frames carry no local color table, so they use the global one
+  IIOMetadata gifMetadata(ImageWriter writer, ImageWriteParam param, BufferedImage image,
+      int frameMillis) throws IOException {
+    IIOMetadata metadata = writer
+        .getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+    String format = metadata.getNativeMetadataFormatName();
+    IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+    this.removeChildren(root, "LocalColorTable"); // the writer's default web palette
+
+    IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+    control.setAttribute("disposalMethod", "none");
+    control.setAttribute("userInputFlag", "FALSE");
+    control.setAttribute("transparentColorFlag", "FALSE");
+    control.setAttribute("delayTime", Integer.toString(frameMillis / 10)); // in 1/100 s
+    control.setAttribute("transparentColorIndex", "0");
+    root.appendChild(control);
+
+    IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+    loop.setAttribute("applicationID", "NETSCAPE");
+    loop.setAttribute("authenticationCode", "2.0");
+    loop.setUserObject(new byte[] { 1, 0, 0 }); // loop count 0 = forever
+
+    IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+    extensions.appendChild(loop);
+    root.appendChild(extensions);
+
+    metadata.setFromTree(format, root);
+    return metadata;
+  }
+
+  // remove every child of the given metadata node with the given name
+  void removeChildren(IIOMetadataNode node, String name) {
+    for (int k = node.getLength() - 1; k >= 0; k--) {
+      if (node.item(k).getNodeName().equals(name)) {
+        node.removeChild(node.item(k));
+      }
+    }
+  }
+
+  // to build a 256-color palette that starts with every game color, padded out with
+  // a color cube and grays for the anti-aliased text edges
+  IndexColorModel palette() {
+    ArrayList<Color> colors = new ArrayList<Color>(256);
+    colors.add(IConstants.BACKGROUND_COLOR);
+    colors.add(IConstants.EMPTY_COLOR);
+    colors.add(IConstants.BORDER_COLOR);
+    colors.add(IConstants.TEXT_24_COLOR);
+    colors.add(IConstants.TEXT_COLOR);
+    colors.add(IConstants.SCORE_LABEL_COLOR);
+    colors.addAll(IConstants.TILE_COLORS.values());
+
+    // 6x6x6 color cube
+    for (int r = 0; r < 6; r++) {
+      for (int g = 0; g < 6; g++) {
+        for (int b = 0; b < 6; b++) {
+          colors.add(new Color(r * 51, g * 51, b * 51));
+        }
+      }
+    }
+
+    // fill whatever is left with grays
+    int grays = 256 - colors.size();
+    for (int k = 0; k < grays; k++) {
+      int level = k * 255 / Math.max(1, grays - 1);
+      colors.add(new Color(level, level, level));
+    }
+
+    byte[] reds = new byte[256];
+    byte[] greens = new byte[256];
+    byte[] blues = new byte[256];
+    for (int k = 0; k < 256; k++) {
+      reds[k] = (byte) colors.get(k).getRed();
+      greens[k] = (byte) colors.get(k).getGreen();
+      blues[k] = (byte) colors.get(k).getBlue();
+    }
+    return new IndexColorModel(8, 256, reds, greens, blues);
+  }
+
+  // export a seeded game from the command line:
+  //   ReplayExporter <seed> <out.gif | out-directory> <keys, e.g. "uulrd", "e" for enter>
+  public static void main(String[] args) throws IOException {
+    System.setProperty("java.awt.headless", "true"); // no display on build machines
+
+    if (args.length != 3) {
+      System.err.println("usage: ReplayExporter <seed> <out.gif | out-directory> <keys>");
+      System.exit(1);
+    }
+
+    ArrayList<String> moves = new ArrayList<String>(args[2].length());
+    for (char c : args[2].toCharArray()) {
+      switch (c) {
+      case 'u':
+        moves.add("up");
+        break;
+      case 'd':
+        moves.add("down");
+        break;
+      case 'l':
+        moves.add("left");
+        break;
+      case 'r':
+        moves.add("right");
+        break;
+      case 'e':
+        moves.add("enter");
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown key: " + c);
+      }
+    }
+
+    ReplayExporter exporter = new ReplayExporter(Long.parseLong(args[0]), moves);
+    File out = new File(args[1]);
+    if (args[1].endsWith(".gif")) {
+      exporter.exportGif(out, 150);
+    }
+    else {
+      exporter.exportPngs(out);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+// A single window showing many boards played concurrently by background AI workers.
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import javalib.impworld.*;
+import javalib.worldimages.*;
+
+// to represent one AI-played game: the board belongs to its worker thread,
+// and other threads only ever see the immutable snapshots it publishes
+class SpectatedGame implements Runnable {
+  static final String[] PREFERENCE = { "down", "left", "right", "up" }; // keep big tiles low
+
+  Board board;
+  AtomicReference<BoardSnapshot> latest; // newest snapshot, written by the worker
+  int moveMillis; // pause between moves, so the game is watchable
+  int restartMillis; // pause on a finished game before starting the next one
+
+  BoardSnapshot drawn; // snapshot the cached image was drawn from (render thread only)
+  ComputedPixelImage image; // board painted at wall scale (render thread only)
+
+  SpectatedGame(long seed, int moveMillis, int restartMillis) {
+    this.board = new Board(seed);
+    this.latest = new AtomicReference<BoardSnapshot>(new BoardSnapshot(this.board));
+    this.moveMillis = moveMillis;
+    this.restartMillis = restartMillis;
+  }
+
+  // play games forever, publishing a snapshot after every move
+  public void run() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        if (this.board.gameOver) {
+          Thread.sleep(this.restartMillis);
+          this.board.initializeBoard();
+        }
+        else {
+          this.playMove();
+          this.board.checkGameOver();
+        }
+        // publish before pausing, so the wall shows each move as soon as it is made
+        this.latest.set(new BoardSnapshot(this.board));
+        Thread.sleep(this.moveMillis);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt(); // the wall is shutting down
+    }
+  }
+
+  // play the first move, in order of preference, that changes the board
+  void playMove() {
+    for (String key : PREFERENCE) {
+      if (this.board.move(key) > 0) {
+        return;
+      }
+    }
+  }
+}
+
+// to show many concurrently played boards side by side in one world; each board is painted
+// into pixels once per snapshot, and frames in between just place those pixels
+class SpectatorWall extends World {
+  ArrayList<SpectatedGame> games;
+
+  int columns;
+  double scale; // size of each board relative to the full game window
+
+  BoardPainter painter;
+  int repaints; // boards painted so far (render thread only)
+
+  // a wall of the given number of games, laid out in the given number of columns
+  SpectatorWall(int nGames, int columns, double scale) {
+    this.games = new ArrayList<SpectatedGame>(nGames);
+    this.columns = columns;
+    this.scale = scale;
+    this.painter = new BoardPainter();
+    this.repaints = 0;
+
+    Random seeds = new Random();
+    for (int k = 0; k < nGames; k++) {
+      this.games.add(new SpectatedGame(seeds.nextLong(), 100, 2000));
+    }
+  }
+
+  // start a background worker for each game; the workers are daemon threads,
+  // so they stop when the window is closed and the program exits
+  void start() {
+    for (int k = 0; k < this.games.size(); k++) {
+      Thread worker = new Thread(this.games.get(k), "spectated-game-" + k);
+      worker.setDaemon(true);
+      worker.start();
+    }
+  }
+
+  int rows() {
+    return (this.games.size() + this.columns - 1) / this.columns;
+  }
+
+  int cellWidth() {
+    return (int) Math.ceil(IConstants.GAMEBOARD_WIDTH * this.scale) + IConstants.CELL_GAP;
+  }
+
+  int cellHeight() {
+    return (int) Math.ceil(IConstants.GAMEBOARD_HEIGHT * this.scale) + IConstants.CELL_GAP;
+  }
+
+  int width() {
+    return this.columns * this.cellWidth() + IConstants.CELL_GAP;
+  }
+
+  int height() {
+    return this.rows() * this.cellHeight() + IConstants.CELL_GAP;
+  }
+
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+   *                                 WORLD METHODS                                     *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  // to render every board, repainting only the ones that changed since the last frame
+  @Override
+  public WorldScene makeScene() {
+    WorldScene scene = this.getEmptyScene();
+
+    scene.placeImageXY(new RectangleImage(this.width(), this.height(), OutlineMode.SOLID,
+        IConstants.BORDER_COLOR), this.width() / 2, this.height() / 2);
+
+    for (int k = 0; k < this.games.size(); k++) {
+      SpectatedGame game = this.games.get(k);
+      BoardSnapshot snapshot = game.latest.get();
+
+      // every move publishes a new snapshot, so an unchanged reference means an unchanged board
+      if (snapshot != game.drawn) {
+        this.repaint(game, snapshot);
+      }
+
+      int x = IConstants.CELL_GAP + (k % this.columns) * this.cellWidth()
+          + this.cellWidth() / 2;
+      int y = IConstants.CELL_GAP + (k / this.columns) * this.cellHeight()
+          + this.cellHeight() / 2;
+      scene.placeImageXY(game.image, x, y);
+    }
+
+    return scene;
+  }
+
+  // paint the given snapshot at wall scale into the game's pixel image, so that later
+  // frames only copy its pixels instead of laying out and drawing the board again
+  void repaint(SpectatedGame game, BoardSnapshot snapshot) {
+    BufferedImage pixels = this.painter.render(snapshot, this.scale);
+
+    if (game.image == null) {
+      game.image = new ComputedPixelImage(pixels.getWidth(), pixels.getHeight());
+    }
+    for (int x = 0; x < pixels.getWidth(); x++) {
+      for (int y = 0; y < pixels.getHeight(); y++) {
+        game.image.setPixel(x, y, new Color(pixels.getRGB(x, y)));
+      }
+    }
+
+    game.drawn = snapshot;
+    this.repaints++;
+  }
+
+  // to return the average time in milliseconds that makeScene takes over the given
+  // number of frames
+  double frameMillis(int frames) {
+    long start = System.nanoTime();
+    for (int k = 0; k < frames; k++) {
+      this.makeScene();
+    }
+    return (System.nanoTime() - start) / (frames * 1e6);
+  }
+
+  // show a wall of AI-played games:
+  //   SpectatorWall [games] [columns]
+  public static void main(String[] args) {
+    int nGames = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+    int columns = (args.length > 1) ? Integer.parseInt(args[1])
+        : (int) Math.ceil(Math.sqrt(nGames));
+
+    SpectatorWall wall = new SpectatorWall(nGames, columns, 1.0 / 5);
+    wall.start();
+    wall.bigBang(wall.width(), wall.height(), 1.0 / 30);
+  }
+}
+
+// to measure how long the wall takes to render a frame when every board has changed,
+// compared with a frame where none has
+class SpectatorWallBenchmark {
+  // time the wall's frames without opening a window:
+  //   SpectatorWallBenchmark [games] [frames]
+  public static void main(String[] args) {
+    int nGames = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+    int frames = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+
+    SpectatorWall wall = new SpectatorWall(nGames, (int) Math.ceil(Math.sqrt(nGames)), 1.0 / 5);
+    wall.makeScene(); // paint every board once
+
+    long start = System.nanoTime();
+    for (int frame = 0; frame < frames; frame++) {
+      for (SpectatedGame game : wall.games) {
+        game.latest.set(new BoardSnapshot(game.board));
+      }
+      wall.makeScene();
+    }
+    double changedMillis = (System.nanoTime() - start) / (frames * 1e6);
+
+    System.out.printf("%d boards: %.3f ms per frame with every board changed, "
+        + "%.3f ms with none changed%n", nGames, changedMillis, wall.frameMillis(frames));
+  }
+}
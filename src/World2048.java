@@ -12,6 +12,8 @@ import javalib.worldimages.*;
 interface IConstants {
   int N_CELLS = 4;
 
+  int EVENT_CAPACITY = 1024; // events buffered for each board's subscribers
+
   int CELL_SIDE = 80;
   int CELL_GAP = 10;
   int BOARD_SIDE = CELL_SIDE * 4 + CELL_GAP * 5;
@@ -122,7 +124,9 @@ class Tile {
 
 // to represent a 2048 game board with 16 tiles
 class Board extends World {
+  long seed; // seeds rand, so this game can be replayed from its key log
   Random rand;
+  ArrayList<String> keyLog; // every key that moved tiles or restarted the game
 
   ArrayList<ArrayList<Tile>> cells; // tiles and empty cells
   ArrayList<Posn> emptyPosns; // positions that don't have tiles
@@ -134,15 +138,29 @@ class Board extends World {
   boolean gameOver;
   boolean win;
 
+  GameEventStream eventStream; // moves, merges, spawns, and game starts/ends
+
   // initial board; spawn two 2-tiles in random positions
   Board() {
-    this.rand = new Random();
+    this(new Random().nextLong());
+  }
+
+  // initial board using the given seed, so that the game can be replayed
+  // move for move from the seed and its key log
+  Board(long seed) {
+    this.seed = seed;
+    this.rand = new Random(seed);
+    this.keyLog = new ArrayList<String>();
+    this.eventStream = new GameEventStream(IConstants.EVENT_CAPACITY);
     this.initializeBoard();
     this.best = 0;
   }
 
   // initialize the tiles and list of empty positions
   void initializeBoard() {
+    this.eventStream.publish(GameEvent.game(GameEvent.START, 0));
+    GameStats.gameStarted();
+
     this.cells = new ArrayList<ArrayList<Tile>>(4); // 4 row capacity
     this.emptyPosns = new ArrayList<Posn>(16); // 16 cell capacity
 
@@ -182,6 +200,16 @@ class Board extends World {
 
     // get the row at the given y-pos, set the cell at the given x-pos to new tile
     this.cells.get(posn.x).set(posn.y, tile);
+
+    this.eventStream.publish(GameEvent.spawn(posn.x, posn.y, value));
+
+    SpawnEvent spawnEvent = new SpawnEvent();
+    if (spawnEvent.shouldCommit()) {
+      spawnEvent.row = posn.x;
+      spawnEvent.col = posn.y;
+      spawnEvent.value = value;
+      spawnEvent.commit();
+    }
   }
 
   /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * 
@@ -191,6 +219,10 @@ class Board extends World {
   // to render the scene for the 2048 game
   @Override
   public WorldScene makeScene() {
+    RenderEvent renderEvent = new RenderEvent();
+    renderEvent.begin();
+    long start = GameStats.start();
+
     WorldScene scene = this.getEmptyScene();
 
     // outer game board
@@ -203,8 +235,7 @@ class Board extends World {
     RectangleImage boardImage = new RectangleImage(IConstants.BOARD_SIDE, IConstants.BOARD_SIDE,
         OutlineMode.SOLID, IConstants.BORDER_COLOR);
 
-    scene.placeImageXY(boardImage, IConstants.GAMEBOARD_WIDTH / 2,
-        (IConstants.CELL_SIDE / 2) + IConstants.LABEL_HEIGHT + (IConstants.BOARD_SIDE / 2));
+    scene.placeImageXY(boardImage, Board.boardCenterX(), Board.boardCenterY());
 
     // header (title/description/score boxes)
     scene = this.drawHeader(scene);
@@ -214,24 +245,14 @@ class Board extends World {
       for (int j = 0; j < IConstants.N_CELLS; j++) {
         Tile cell = this.cells.get(i).get(j);
         WorldImage cellDrawn = cell.draw();
-        int boardX = this.jToX(j);
-        int boardY = this.iToY(i);
+        int boardX = Board.jToX(j);
+        int boardY = Board.iToY(i);
         scene.placeImageXY(cellDrawn, boardX, boardY);
       }
     }
 
-    // if they've gotten the last tile, end the game (win)
-    if (this.maxTile == 2048) {
-      this.endGame(true);
-    }
-
-    // if the board is filled
-    else if (this.emptyPosns.size() == 0) {
-      // check if they have moves left to make
-      if (!this.movesLeft()) {
-        this.endGame(false); // if they don't, end the game
-      }
-    }
+    // end the game if it's been won or lost
+    this.checkGameOver();
 
     // if the game is over, display a game-over message
     if (this.gameOver) {
@@ -247,10 +268,12 @@ class Board extends World {
       gameOverBox = new OverlayOffsetImage(textBottom, 0, -IConstants.CELL_GAP * 3 / 2,
           gameOverBox);
 
-      scene.placeImageXY(gameOverBox, IConstants.GAMEBOARD_WIDTH / 2,
-          (IConstants.CELL_SIDE / 2) + IConstants.LABEL_HEIGHT + (IConstants.BOARD_SIDE / 2));
+      scene.placeImageXY(gameOverBox, Board.boardCenterX(), Board.boardCenterY());
     }
 
+    renderEvent.commit();
+    GameStats.rendered(start);
+
     return scene;
   }
 
@@ -259,13 +282,12 @@ class Board extends World {
     TextImage title = new TextImage(Integer.toString(2048), IConstants.CELL_SIDE * 9 / 10,
         FontStyle.BOLD, IConstants.TEXT_24_COLOR);
 
-    scene.placeImageXY(title, IConstants.CELL_SIDE * 3 / 2, IConstants.CELL_SIDE * 8 / 9);
+    scene.placeImageXY(title, Board.titleX(), Board.titleY());
 
     TextImage description = new TextImage("Join the numbers and get to the 2048 tile!",
         IConstants.CELL_SIDE * 18 / 80, FontStyle.BOLD, IConstants.TEXT_24_COLOR);
 
-    scene.placeImageXY(description, IConstants.BOARD_SIDE / 2 + IConstants.CELL_GAP * 7 / 2,
-        IConstants.CELL_SIDE * 2 - IConstants.CELL_GAP * 2);
+    scene.placeImageXY(description, Board.descriptionX(), Board.descriptionY());
 
     WorldImage scoreBestBox = new RectangleImage(IConstants.CELL_SIDE, IConstants.CELL_SIDE / 2,
         OutlineMode.SOLID, IConstants.BORDER_COLOR);
@@ -280,9 +302,7 @@ class Board extends World {
         scoreBestBox);
     scoreBox = new OverlayOffsetImage(scoreText, 0, -IConstants.CELL_GAP, scoreBox);
 
-    scene.placeImageXY(scoreBox,
-        IConstants.GAMEBOARD_WIDTH - IConstants.CELL_SIDE * 2 - 2 * IConstants.CELL_GAP,
-        IConstants.CELL_SIDE - IConstants.CELL_GAP / 2);
+    scene.placeImageXY(scoreBox, Board.scoreBoxX(), Board.headerY());
 
     TextImage bestLabel = new TextImage("BEST", (IConstants.CELL_SIDE / 5), FontStyle.BOLD,
         IConstants.SCORE_LABEL_COLOR);
@@ -294,21 +314,68 @@ class Board extends World {
         scoreBestBox);
     bestBox = new OverlayOffsetImage(bestText, 0, -IConstants.CELL_GAP, bestBox);
 
-    scene.placeImageXY(bestBox,
-        IConstants.GAMEBOARD_WIDTH - IConstants.CELL_SIDE - IConstants.CELL_GAP,
-        IConstants.CELL_SIDE - IConstants.CELL_GAP / 2);
+    scene.placeImageXY(bestBox, Board.bestBoxX(), Board.headerY());
 
     return scene;
   }
 
+  /* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+   *              LAYOUT (static, so other renderers share it without a Board)           *
+   * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+  // to return the pixel x-position of the center of the game grid
+  static int boardCenterX() {
+    return IConstants.GAMEBOARD_WIDTH / 2;
+  }
+
+  // to return the pixel y-position of the center of the game grid
+  static int boardCenterY() {
+    return (IConstants.CELL_SIDE / 2) + IConstants.LABEL_HEIGHT + (IConstants.BOARD_SIDE / 2);
+  }
+
+  // to return the pixel x-position of the title
+  static int titleX() {
+    return IConstants.CELL_SIDE * 3 / 2;
+  }
+
+  // to return the pixel y-position of the title
+  static int titleY() {
+    return IConstants.CELL_SIDE * 8 / 9;
+  }
+
+  // to return the pixel x-position of the description
+  static int descriptionX() {
+    return IConstants.BOARD_SIDE / 2 + IConstants.CELL_GAP * 7 / 2;
+  }
+
+  // to return the pixel y-position of the description
+  static int descriptionY() {
+    return IConstants.CELL_SIDE * 2 - IConstants.CELL_GAP * 2;
+  }
+
+  // to return the pixel x-position of the score box
+  static int scoreBoxX() {
+    return IConstants.GAMEBOARD_WIDTH - IConstants.CELL_SIDE * 2 - 2 * IConstants.CELL_GAP;
+  }
+
+  // to return the pixel x-position of the best-score box
+  static int bestBoxX() {
+    return IConstants.GAMEBOARD_WIDTH - IConstants.CELL_SIDE - IConstants.CELL_GAP;
+  }
+
+  // to return the pixel y-position of the score and best-score boxes
+  static int headerY() {
+    return IConstants.CELL_SIDE - IConstants.CELL_GAP / 2;
+  }
+
   // to convert a column index to its pixel x-position on the game board
-  int jToX(int j) {
+  static int jToX(int j) {
     return (IConstants.CELL_SIDE + IConstants.CELL_GAP)
         + (j * (IConstants.CELL_SIDE + IConstants.CELL_GAP));
   }
 
   // to convert a row index to its pixel y-position on the game board
-  int iToY(int i) {
+  static int iToY(int i) {
     return (IConstants.CELL_SIDE / 2 + IConstants.CELL_GAP)
         + (i * (IConstants.CELL_SIDE + IConstants.CELL_GAP)) + (IConstants.CELL_SIDE / 2)
         + IConstants.LABEL_HEIGHT;
@@ -323,6 +390,7 @@ class Board extends World {
     if (this.gameOver) {
       if (key.equals("enter") || key.equals("up") || key.equals("down") || key.equals("left")
           || key.equals("right")) {
+        this.keyLog.add(key);
         this.initializeBoard();
       }
       else {
@@ -332,47 +400,97 @@ class Board extends World {
 
     // still in game => handle movement
     else {
-      int events = 0;
-
-      // move the tiles based on the given key
-      switch (key) {
-      case "up":
-        events = this.moveTilesUp();
-        break;
-      case "down":
-        events = this.moveTilesDown();
-        break;
-      case "left":
-        events = this.moveTilesLeft();
-        break;
-      case "right":
-        events = this.moveTilesRight();
-        break;
-      default:
-        break;
+      if (this.move(key) > 0) {
+        this.keyLog.add(key);
       }
+    }
 
-      // update high score if necessary
-      if (this.score > this.best) {
-        this.best = this.score;
-      }
+  }
 
-      // if an event happened, spawn a tile
-      if (events > 0) {
-        this.spawnTile(this.rand.nextInt(2) * 2 + 2);
-      }
+  // to move the tiles in the direction of the given key, update the high score,
+  // and spawn a new tile if at least one event happens (movement/combination)
+  // return the number of events that happen
+  int move(String key) {
+    MoveEvent moveEvent = new MoveEvent();
+    moveEvent.begin();
+    long start = GameStats.start();
+    int startScore = this.score;
+
+    int events = 0;
+
+    // move the tiles based on the given key
+    switch (key) {
+    case "up":
+      events = this.moveTilesUp();
+      break;
+    case "down":
+      events = this.moveTilesDown();
+      break;
+    case "left":
+      events = this.moveTilesLeft();
+      break;
+    case "right":
+      events = this.moveTilesRight();
+      break;
+    default:
+      return 0; // not a move, so not timed or counted as one
+    }
+
+    moveEvent.end();
+    GameStats.moved(start);
+
+    // update high score if necessary
+    if (this.score > this.best) {
+      this.best = this.score;
+    }
+
+    // if an event happened, spawn a tile
+    if (events > 0) {
+      this.spawnTile(this.rand.nextInt(2) * 2 + 2);
+    }
+
+    if (moveEvent.shouldCommit()) {
+      moveEvent.direction = key;
+      moveEvent.events = events;
+      moveEvent.scoreDelta = this.score - startScore;
+      moveEvent.commit();
     }
 
+    return events;
+  }
+
+  // end the game if the last tile has been reached or no moves are left
+  void checkGameOver() {
+    // if they've gotten the last tile, end the game (win)
+    if (this.maxTile == 2048) {
+      this.endGame(true);
+    }
+
+    // if the board is filled
+    else if (this.emptyPosns.size() == 0) {
+      // check if they have moves left to make
+      if (!this.movesLeft()) {
+        this.endGame(false); // if they don't, end the game
+      }
+    }
   }
 
   // end the game with the given win condition
   void endGame(boolean win) {
+    if (!this.gameOver) {
+      int type = (win) ? GameEvent.WIN : GameEvent.LOSE;
+      this.eventStream.publish(GameEvent.game(type, this.score));
+      GameStats.gameFinished();
+    }
+
     this.gameOver = true;
     this.win = win;
   }
 
   // to determine whether the player still has moves to play
   boolean movesLeft() {
+    GameStats.movesLeftChecked();
+
     boolean movesLeft = false;
     for (int i = 0; i < IConstants.N_CELLS - 1; i++) {
       for (int j = 0; j < IConstants.N_CELLS - 1; j++) {
@@ -421,6 +539,7 @@ class Board extends World {
   int moveTilesUp() {
 
     int events = 0;
+    int startScore = this.score;
 
     // go across columns
     for (int j = 0; j < IConstants.N_CELLS; j++) {
@@ -467,6 +586,7 @@ class Board extends World {
             this.score += combinedNum; // add the new combined tile to the score
 
             this.cells.get(i - 1).set(j, new Tile(combinedNum)); // combination replaces above tile
+            this.eventStream.publish(GameEvent.merge(i - 1, j, combinedNum));
             this.cells.get(i).set(j, new Tile()); // add empty tile to its old spot
             this.emptyPosns.add(new Posn(i, j)); // its old position is empty now
 
@@ -479,6 +599,7 @@ class Board extends World {
       }
     }
 
+    this.eventStream.publish(GameEvent.move(GameEvent.UP, events, this.score - startScore));
     return events;
   }
 
@@ -504,6 +625,7 @@ class Board extends World {
   int moveTilesDown() {
 
     int events = 0;
+    int startScore = this.score;
 
     // go across columns
     for (int j = 0; j < IConstants.N_CELLS; j++) {
@@ -550,6 +672,7 @@ class Board extends World {
             this.score += combinedNum; // add the new combined tile to the score
 
             this.cells.get(i + 1).set(j, new Tile(combinedNum)); // combination replaces below tile
+            this.eventStream.publish(GameEvent.merge(i + 1, j, combinedNum));
             this.cells.get(i).set(j, new Tile()); // add empty tile to its old spot
             this.emptyPosns.add(new Posn(i, j)); // its old position is empty now
 
@@ -562,6 +685,7 @@ class Board extends World {
       }
     }
 
+    this.eventStream.publish(GameEvent.move(GameEvent.DOWN, events, this.score - startScore));
     return events;
   }
 
@@ -587,6 +711,7 @@ class Board extends World {
   int moveTilesLeft() {
 
     int events = 0;
+    int startScore = this.score;
 
     // go down rows
     for (int i = 0; i < IConstants.N_CELLS; i++) {
@@ -633,6 +758,7 @@ class Board extends World {
             this.score += combinedNum; // add the new combined tile to the score
 
             this.cells.get(i).set(j - 1, new Tile(combinedNum)); // combination replaces left tile
+            this.eventStream.publish(GameEvent.merge(i, j - 1, combinedNum));
             this.cells.get(i).set(j, new Tile()); // add empty tile to its old spot
             this.emptyPosns.add(new Posn(i, j)); // its old position is empty now
 
@@ -645,6 +771,7 @@ class Board extends World {
       }
     }
 
+    this.eventStream.publish(GameEvent.move(GameEvent.LEFT, events, this.score - startScore));
     return events;
   }
 
@@ -670,6 +797,7 @@ class Board extends World {
   int moveTilesRight() {
 
     int events = 0;
+    int startScore = this.score;
 
     // go down rows
     for (int i = 0; i < IConstants.N_CELLS; i++) {
@@ -716,6 +844,7 @@ class Board extends World {
             this.score += combinedNum; // add the new combined tile to the score
 
             this.cells.get(i).set(j + 1, new Tile(combinedNum)); // combination replaces left tile
+            this.eventStream.publish(GameEvent.merge(i, j + 1, combinedNum));
             this.cells.get(i).set(j, new Tile()); // add empty tile to its old spot
             this.emptyPosns.add(new Posn(i, j)); // its old position is empty now
 
@@ -728,6 +857,7 @@ class Board extends World {
       }
     }
 
+    this.eventStream.publish(GameEvent.move(GameEvent.RIGHT, events, this.score - startScore));
     return events;
   }
 }
\ No newline at end of file